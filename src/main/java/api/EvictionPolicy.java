@@ -0,0 +1,17 @@
+package api;
+
+/**
+ * 空闲对象回收策略的接口。
+ * 对象池执行回收时，先按照compare给出的顺序排列空闲对象，再依次调用evict判断是否回收，
+ * 同时保证闲置队列中的对象数量不少于minFree。
+ */
+public interface EvictionPolicy<T> {
+    /** 比较两个空闲对象的回收优先级，返回负数表示p1应先于p2被回收*/
+    int compare(PooledObject<T> p1, PooledObject<T> p2);
+
+    /**
+    判断空闲对象是否应被回收
+    idleTime为对象已闲置的时间，destoryTime为对象池设置的空闲对象保持时间，单位均为毫秒
+    */
+    boolean evict(PooledObject<T> p, long idleTime, long destoryTime);
+}
@@ -25,4 +25,9 @@ public interface ObjectFactory<T> {
 
     /**当实例从pool中丢掉时使用，一般是被验证无效或者是特殊的实现考虑，和对象的状态并没有关系*/
     void destroyObject(PooledObject<T> p) throws Exception;
+
+    /**估算对象当前占用的内存，单位字节，用于按内存限制对象池大小，默认返回0表示不统计*/
+    default long estimateSize(PooledObject<T> p) {
+        return 0L;
+    }
 }
@@ -13,6 +13,10 @@ public interface PooledObject<T> {
     PooledObjectState getState();
     /** 有某个线程从对象池中获取并使用该对象*/
     boolean use();
+    /** 有某个线程开始归还该对象，对象进入归还中状态，等待钝化；不支持归还中状态时返回false，由归还的线程直接钝化*/
+    default boolean beginReturn() {
+        return false;
+    }
     /** 有某个线程将该对象归还至对象池*/
     boolean giveBack();
     /** 将该对象标记为可销毁的对象*/
@@ -23,5 +27,17 @@ public interface PooledObject<T> {
     long getLastReturnTime();
     /** 获取该对象上一次使用时间*/
     long getLastUseTime();
+    /** 获取该对象被借出的次数，默认返回0表示不统计*/
+    default long getBorrowCount() {
+        return 0L;
+    }
+    /** 获取创建该对象的耗时，单位纳秒，默认返回0表示不统计*/
+    default long getCreateCost() {
+        return 0L;
+    }
+    /** 获取该对象最近一次估算的占用内存，单位字节，默认返回0表示不统计*/
+    default long getRetainedSize() {
+        return 0L;
+    }
 
 }
@@ -0,0 +1,235 @@
+package impl;
+
+import api.PooledObject;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 借出位置采样分析器。
+ * 每sampleInterval次借出随机采样一次，记录借出时的调用栈，并在归还时按调用位置统计持有时间，
+ * 用于找出持有对象最久的代码路径，以及被移除或一直未归还的对象是从哪里借出的。
+ * 未被采样的借出只有一次随机数判断的开销。
+ */
+public class BorrowSiteProfiler {
+    /**
+     * 每个调用位置保留的最近持有时间样本数，用于计算p99
+     */
+    private static final int HOLD_SAMPLES = 1024;
+    /**
+     * 调用栈中最多保留的帧数
+     */
+    private static final int MAX_FRAMES = 16;
+    /**
+     * 只在采样时遍历调用栈，且只遍历需要的帧
+     */
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    /**
+     * 采样间隔，平均每sampleInterval次借出采样一次
+     */
+    private final int sampleInterval;
+    /**
+     * 已采样且尚未归还的对象
+     */
+    private final Map<PooledObject<?>, Sample> outstanding = new ConcurrentHashMap<>();
+    /**
+     * 各调用位置的统计
+     */
+    private final ConcurrentHashMap<String, SiteStats> sites = new ConcurrentHashMap<>();
+
+    /**
+     * 一次被采样的借出
+     */
+    private static class Sample {
+        final String site;
+        final StackTraceElement[] stack;
+        final long borrowNanos;
+
+        Sample(String site, StackTraceElement[] stack, long borrowNanos) {
+            this.site = site;
+            this.stack = stack;
+            this.borrowNanos = borrowNanos;
+        }
+    }
+
+    /**
+     * 某个调用位置的持有时间统计
+     */
+    public static class SiteStats {
+        private final String site;
+        private final long[] holdNanos = new long[HOLD_SAMPLES];
+        private long count;
+        private long abandonedCount;
+        private long maxHoldNanos;
+
+        SiteStats(String site) {
+            this.site = site;
+        }
+
+        synchronized void record(long nanos) {
+            holdNanos[(int) (count % HOLD_SAMPLES)] = nanos;
+            count++;
+            maxHoldNanos = Math.max(maxHoldNanos, nanos);
+        }
+
+        synchronized void abandoned() {
+            abandonedCount++;
+        }
+
+        public String getSite() {
+            return site;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getAbandonedCount() {
+            return abandonedCount;
+        }
+
+        public synchronized long getMaxHoldNanos() {
+            return maxHoldNanos;
+        }
+
+        /** 最近HOLD_SAMPLES次归还中持有时间的p99，单位纳秒*/
+        public synchronized long getP99HoldNanos() {
+            int n = (int) Math.min(count, HOLD_SAMPLES);
+            if (n == 0)
+                return 0L;
+            long[] sorted = Arrays.copyOf(holdNanos, n);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(n * 0.99) - 1];
+        }
+    }
+
+    public BorrowSiteProfiler(int sampleInterval) {
+        if (sampleInterval <= 0)
+            throw new IllegalArgumentException("不合法的采样间隔参数");
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+    * @Description: 对象借出成功后调用，按采样间隔决定是否记录调用栈
+    * @Param: [p]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    void borrowed(PooledObject<?> p) {
+        if (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0)
+            return;
+        StackTraceElement[] stack = callerStack();
+        String site = stack.length > 0 ? stack[0].toString() : "unknown";
+        outstanding.put(p, new Sample(site, stack, System.nanoTime()));
+    }
+
+    /**
+    * @Description: 对象归还时调用，将持有时间计入借出位置的统计
+    * @Param: [p]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    void returned(PooledObject<?> p) {
+        Sample sample = outstanding.remove(p);
+        if (sample != null)
+            siteStats(sample.site).record(System.nanoTime() - sample.borrowNanos);
+    }
+
+    /**
+    * @Description: 对象因借出超时被移除时调用，返回其借出时的调用栈，未被采样时返回null
+    * @Param: [p]
+    * @return: java.lang.StackTraceElement[]
+    * @Date: 2026/10/18
+    */
+    StackTraceElement[] abandoned(PooledObject<?> p) {
+        Sample sample = outstanding.remove(p);
+        if (sample == null)
+            return null;
+        SiteStats stats = siteStats(sample.site);
+        stats.record(System.nanoTime() - sample.borrowNanos);
+        stats.abandoned();
+        return sample.stack;
+    }
+
+    /**
+    * @Description: 对象被销毁时调用，丢弃其采样记录
+    * @Param: [p]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    void destroyed(PooledObject<?> p) {
+        outstanding.remove(p);
+    }
+
+    /**
+    * @Description: 按p99持有时间从大到小返回前k个借出位置的统计
+    * @Param: [k]
+    * @return: java.util.List<impl.BorrowSiteProfiler.SiteStats>
+    * @Date: 2026/10/18
+    */
+    public List<SiteStats> topSites(int k) {
+        List<SiteStats> list = new ArrayList<>(sites.values());
+        final Map<SiteStats, Long> p99 = new HashMap<>();
+        for (SiteStats stats : list)
+            p99.put(stats, stats.getP99HoldNanos());
+        Collections.sort(list, new Comparator<SiteStats>() {
+            @Override
+            public int compare(SiteStats s1, SiteStats s2) {
+                return Long.compare(p99.get(s2), p99.get(s1));
+            }
+        });
+        return list.subList(0, Math.min(k, list.size()));
+    }
+
+    /**
+    * @Description: 生成分析报告：前k个借出位置的p99持有时间，以及已采样但仍未归还的对象的借出位置
+    * @Param: [k]
+    * @return: java.lang.String
+    * @Date: 2026/10/18
+    */
+    public String report(int k) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("借出位置（按p99持有时间排序）：\n");
+        for (SiteStats stats : topSites(k)) {
+            sb.append("  ").append(stats.getSite())
+                    .append(" 次数=").append(stats.getCount())
+                    .append(" p99=").append(stats.getP99HoldNanos() / 1000).append("us")
+                    .append(" max=").append(stats.getMaxHoldNanos() / 1000).append("us")
+                    .append(" 超时移除=").append(stats.getAbandonedCount()).append('\n');
+        }
+        long now = System.nanoTime();
+        sb.append("未归还的对象：\n");
+        for (Sample sample : outstanding.values()) {
+            sb.append("  ").append(sample.site)
+                    .append(" 已持有=").append((now - sample.borrowNanos) / 1000).append("us\n");
+        }
+        return sb.toString();
+    }
+
+    private SiteStats siteStats(String site) {
+        SiteStats stats = sites.get(site);
+        if (stats == null) {
+            SiteStats newStats = new SiteStats(site);
+            stats = sites.putIfAbsent(site, newStats);
+            if (stats == null)
+                stats = newStats;
+        }
+        return stats;
+    }
+
+    /**
+    * @Description: 获取调用者的调用栈，去掉对象池和分析器自身的帧
+    * @Param: []
+    * @return: java.lang.StackTraceElement[]
+    * @Date: 2026/10/18
+    */
+    private static StackTraceElement[] callerStack() {
+        return WALKER.walk(frames -> frames
+                .dropWhile(frame -> frame.getClassName().equals(BorrowSiteProfiler.class.getName())
+                        || frame.getClassName().equals(ObjectPoolImpl.class.getName()))
+                .limit(MAX_FRAMES)
+                .map(StackWalker.StackFrame::toStackTraceElement)
+                .toArray(StackTraceElement[]::new));
+    }
+}
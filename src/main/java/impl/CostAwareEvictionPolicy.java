@@ -0,0 +1,25 @@
+package impl;
+
+import api.EvictionPolicy;
+import api.PooledObject;
+
+/**
+ * 考虑创建代价的回收策略：以“创建耗时 ×（借出次数 + 1）”作为保留价值，
+ * 创建便宜且很少被复用的对象先被回收，创建昂贵且经常被复用的对象尽量保留。
+ */
+public class CostAwareEvictionPolicy<T> implements EvictionPolicy<T> {
+    @Override
+    public int compare(PooledObject<T> p1, PooledObject<T> p2) {
+        int c = Double.compare(value(p1), value(p2));
+        return c != 0 ? c : Long.compare(p1.getLastReturnTime(), p2.getLastReturnTime());
+    }
+
+    @Override
+    public boolean evict(PooledObject<T> p, long idleTime, long destoryTime) {
+        return idleTime > destoryTime;
+    }
+
+    private double value(PooledObject<T> p) {
+        return (double) p.getCreateCost() * (p.getBorrowCount() + 1);
+    }
+}
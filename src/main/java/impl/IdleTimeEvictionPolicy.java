@@ -0,0 +1,19 @@
+package impl;
+
+import api.EvictionPolicy;
+import api.PooledObject;
+
+/**
+ * 按闲置时间回收的策略（默认策略）：闲置最久的对象先被回收，闲置时间超过destoryTime即可回收。
+ */
+public class IdleTimeEvictionPolicy<T> implements EvictionPolicy<T> {
+    @Override
+    public int compare(PooledObject<T> p1, PooledObject<T> p2) {
+        return Long.compare(p1.getLastReturnTime(), p2.getLastReturnTime());
+    }
+
+    @Override
+    public boolean evict(PooledObject<T> p, long idleTime, long destoryTime) {
+        return idleTime > destoryTime;
+    }
+}
@@ -0,0 +1,20 @@
+package impl;
+
+import api.EvictionPolicy;
+import api.PooledObject;
+
+/**
+ * 最不经常使用（LFU）回收策略：被借出次数最少的对象先被回收，次数相同时闲置最久的先被回收。
+ */
+public class LfuEvictionPolicy<T> implements EvictionPolicy<T> {
+    @Override
+    public int compare(PooledObject<T> p1, PooledObject<T> p2) {
+        int c = Long.compare(p1.getBorrowCount(), p2.getBorrowCount());
+        return c != 0 ? c : Long.compare(p1.getLastReturnTime(), p2.getLastReturnTime());
+    }
+
+    @Override
+    public boolean evict(PooledObject<T> p, long idleTime, long destoryTime) {
+        return idleTime > destoryTime;
+    }
+}
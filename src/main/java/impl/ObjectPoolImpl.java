@@ -1,5 +1,6 @@
 package impl;
 
+import api.EvictionPolicy;
 import api.ObjectFactory;
 import api.ObjectPool;
 import api.PooledObject;
@@ -7,10 +8,16 @@ import com.google.common.collect.Maps;
 import org.apache.log4j.Logger;
 
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 
@@ -51,6 +58,22 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
      * 表示对象池最大对象数量
      */
     private volatile int maxTotal = 10;
+    /**
+     * 对象池所有对象占用内存的上限，单位字节，默认为-1表示不限制
+     */
+    private volatile long maxTotalBytes = -1L;
+    /**
+     * 空闲对象占用内存的上限，单位字节，默认为-1表示不限制
+     */
+    private volatile long maxIdleBytes = -1L;
+    /**
+     * 对象池所有对象（不包含已销毁的）的估算内存之和
+     */
+    private final AtomicLong totalBytes = new AtomicLong(0L);
+    /**
+     * 闲置队列中对象的估算内存之和
+     */
+    private final AtomicLong idleBytes = new AtomicLong(0L);
 
     /**
      * 已创建对象总数（不包含已销毁的）
@@ -84,7 +107,80 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
      * 一个双端阻塞队列，用于存储空闲对象
      */
     private final LinkedBlockingDeque<PooledObject<T>> freeObjects;
+    /**
+     * 对象池所属的对象池组，为null表示不受共享容量限制
+     */
+    private volatile PoolGroup poolGroup;
+    /**
+     * 对象池已满时借用者的等待策略，默认为直接阻塞
+     */
+    private volatile WaitStrategy waitStrategy = WaitStrategy.PARK;
+    /**
+     * 自旋预算的上限，单位纳秒
+     */
+    private volatile long maxSpinNanos = 100_000L;
+    /**
+     * 最近观察到的归还等待时间（指数加权平均），单位纳秒，初始为自旋预算上限的一半
+     */
+    private volatile long handBackNanos = 50_000L;
+    /**
+     * 闲置队列增加对象的次数，自旋等待时只读取这个计数，变化后才去获取闲置队列的锁
+     */
+    private final AtomicLong freeSignal = new AtomicLong();
+    /**
+     * 阻塞在闲置队列上等待归还的借用者数量，大于0时放入溢出层的对象会转交给闲置队列
+     */
+    private final AtomicInteger freeWaiters = new AtomicInteger();
+    /**
+     * 对象池名称，用于区分不同对象池发出的JFR事件
+     */
+    private volatile String name = "ObjectPool@" + Integer.toHexString(System.identityHashCode(this));
+    /**
+     * 借出位置采样分析器，为null表示不采样
+     */
+    private volatile BorrowSiteProfiler borrowSiteProfiler;
+    /**
+     * 是否开启软引用溢出层，默认为false，表示闲置队列已满时直接销毁归还的对象
+     */
+    private volatile boolean softOverflow = false;
+    /**
+     * 软引用溢出层，存放闲置队列已满时归还的对象
+     */
+    final LinkedBlockingDeque<SoftPooledObject<T>> softObjects = new LinkedBlockingDeque<>();
+    /**
+     * 溢出层中被GC回收的软引用会放入此队列
+     */
+    private final ReferenceQueue<PooledObject<T>> softQueue = new ReferenceQueue<>();
 
+    /**
+     * 溢出层中的软引用，记录对象被放入溢出层时估算的内存和归还时间，以便对象被GC回收后扣减内存、回收时判断冷热
+     */
+    static class SoftPooledObject<T> extends SoftReference<PooledObject<T>> {
+        final long retainedSize;
+        final long returnTime;
+
+        SoftPooledObject(PooledObject<T> p, ReferenceQueue<PooledObject<T>> queue) {
+            super(p, queue);
+            this.retainedSize = p.getRetainedSize();
+            this.returnTime = p.getLastReturnTime();
+        }
+    }
+    /**
+     * 空闲对象回收策略，默认按闲置时间回收
+     */
+    private volatile EvictionPolicy<T> evictionPolicy = new IdleTimeEvictionPolicy<>();
+    /**
+     * 是否开启异步钝化，默认为false，表示在归还对象的线程中钝化
+     */
+    private volatile boolean asyncPassivation = false;
+    /**
+     * 等待异步钝化的对象，容量固定，归还时不会额外分配内存
+     */
+    private volatile BlockingQueue<PooledObject<T>> returningObjects;
+    /**
+     * 执行异步钝化的线程
+     */
+    private Thread passivationThread;
 
     public ObjectPoolImpl(ObjectFactory<T> factory) {
         if (factory == null) {
@@ -143,10 +239,11 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
      * 获取的逻辑为：
      * 1、检查并回收已借出中闲置的对象
      * 2、从闲置队列中获取
-     * 3、若闲置队列中无对象，则调用create函数，通过工厂产生新的对象
-     * 4、若创建成功则返回，若不成功则在timeWait时间里阻塞从闲置队列中获取，超时后抛出异常
+     * 3、若闲置队列中无对象，则从软引用溢出层获取，仍没有则调用create函数，通过工厂产生新的对象
+     * 4、若创建成功则返回，若不成功则先从归还中队列取回等待钝化的对象，仍没有则在timeWait时间里阻塞从闲置队列中获取，超时后抛出异常
      * 5、在返回获取的对象前，需要激活这个对象（修改对象状态等）
      * 6、考虑存在多个线程同时调用的情况，需要保证线程安全 
+     * 当前线程打开了PoolScope时，作用域内已绑定的对象直接返回，新借出的对象绑定到作用域
     * @Param: [timeWait] 
     * @return: T 
     * @Author: 薛谌
@@ -155,50 +252,242 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
     public T borrowObject(long timeWait) throws Exception {
         if (this.closed)
             throw new IllegalStateException("对象池未打开或已关闭！");
+        //作用域内已绑定对象时直接返回，不经过闲置队列，也不再激活
+        PoolScope scope = PoolScope.current();
+        if (scope != null) {
+            Object bound = scope.lookup(this);
+            if (bound != null) {
+                PooledObject<T> p = this.allObjects.get(bound);
+                if (p != null && p.getState() == PooledObjectState.USED)
+                    return p.getObject();
+                //绑定的对象已被其他线程销毁（例如借出超时被移除），解除绑定后重新借用
+                scope.unbind(this, bound);
+            }
+        }
         //当空闲对象只有1个且使用对象数超过可以允许的总对象数-3时，检查并回收已借出中闲置的对象
         if (freeObjects.size() < 2 && allObjects.size() - freeObjects.size() > maxTotal - 3)
             removeAbandoned();
 
+        //timeWait<0表示不设置超时时间,会一直等待；创建和等待共用同一个截止时间
+        boolean timed = timeWait >= 0;
+        long deadlineNanos = System.nanoTime() + (timed ? TimeUnit.MILLISECONDS.toNanos(timeWait) : 0L);
+        PoolEvents.Borrow event = new PoolEvents.Borrow();
+        event.begin();
+        try {
+            PooledObject<T> p = null;
+            String outcome = "free";   //对象的来源，记录在JFR事件中
+            p = freeObjects.pollFirst();
+            if (p != null) {
+                this.idleBytes.addAndGet(-p.getRetainedSize());
+            } else {
+                //先从软引用溢出层获取，再创建新对象
+                purgeSoft();
+                p = pollSoft();
+                outcome = "soft";
+            }
+            if (p == null) {
+                p = create(timed, deadlineNanos);
+                outcome = "created";
+            }
+            if (p == null) {
+                //对象池已满时，取回还在等待钝化的对象
+                p = reclaimReturning();
+                outcome = "reclaimed";
+            }
+            if (p == null) {
+                PoolGroup localPoolGroup = this.poolGroup;
+                if (localPoolGroup != null)
+                    p = waitGroup(localPoolGroup, timed, deadlineNanos);
+                else
+                    p = waitFree(timed, deadlineNanos);
+                if (p == null) {
+                    event.outcome = "timeout";
+                    throw new NoSuchElementException("获取对象超时！");
+                }
+                outcome = "waited";
+            }
+            if (!p.use()) {
+                p = null;
+            }
+            if (p == null) {
+                throw new IllegalStateException("更改对象状态失败！");
+            }
+            //获取对象成功，激活对象
+            PoolEvents.Activate activateEvent = new PoolEvents.Activate();
+            activateEvent.begin();
+            try {
+                factory.activateObject(p);
+            } catch (Exception e) {
+                destroy(p);
+                p = null;
+                throw new NoSuchElementException("激活对象失败！");
+            } finally {
+                activateEvent.end();
+                if (activateEvent.shouldCommit()) {
+                    activateEvent.poolName = this.name;
+                    activateEvent.commit();
+                }
+            }
+            event.outcome = outcome;
+            BorrowSiteProfiler localProfiler = this.borrowSiteProfiler;
+            if (localProfiler != null)
+                localProfiler.borrowed(p);
+            if (scope != null)
+                scope.bind(this, p.getObject());
+            return p.getObject();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.poolName = this.name;
+                if (event.outcome == null)
+                    event.outcome = "failed";
+                event.commit();
+            }
+        }
+    }
+    
+    /**
+    * @Description: 在截止时间之前等待其他线程归还对象，timed为false表示一直等待
+     * 等待策略为SPIN或YIELD时，先在自旋预算内检查freeSignal，计数变化后才尝试从闲置队列和软引用溢出层获取，预算用完后再阻塞；
+     * 阻塞期间登记为等待者，归还的对象即使放入溢出层也会被转交到闲置队列；
+     * 每次等待成功后用等待时间更新自旋预算
+    * @Param: [timed, deadlineNanos]
+    * @return: api.PooledObject<T>
+    * @Date: 2026/10/18
+    */
+    private PooledObject<T> waitFree(boolean timed, long deadlineNanos) throws InterruptedException {
+        long startNanos = System.nanoTime();
         PooledObject<T> p = null;
-        p = freeObjects.pollFirst();
+        WaitStrategy strategy = this.waitStrategy;
+        if (strategy != WaitStrategy.PARK)
+            p = spinIdle(strategy, timed, deadlineNanos);
         if (p == null) {
-            p = create();
+            this.freeWaiters.incrementAndGet();
+            try {
+                //登记之后再检查一次溢出层，避免错过登记之前放入溢出层的对象
+                p = pollSoft();
+                if (p == null) {
+                    if (!timed)
+                        p = freeObjects.takeFirst();
+                    else
+                        p = freeObjects.pollFirst(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (p != null)
+                        this.idleBytes.addAndGet(-p.getRetainedSize());
+                }
+            } finally {
+                this.freeWaiters.decrementAndGet();
+            }
         }
-        if (p == null) {
-            //timeWait<0表示不设置超时时间,会一直阻塞
-            if (timeWait < 0) {
-                p = freeObjects.takeFirst();
+        if (p != null)
+            this.recordHandBack(System.nanoTime() - startNanos);
+        return p;
+    }
+
+    /**
+    * @Description: 在自旋预算内等待闲置对象，只有freeSignal变化后才尝试从闲置队列和软引用溢出层获取
+    * @Param: [strategy, timed, deadlineNanos]
+    * @return: api.PooledObject<T>
+    * @Date: 2026/10/19
+    */
+    private PooledObject<T> spinIdle(WaitStrategy strategy, boolean timed, long deadlineNanos) {
+        long startNanos = System.nanoTime();
+        long spinNanos = getSpinBudgetNanos();
+        if (timed)
+            spinNanos = Math.min(spinNanos, deadlineNanos - startNanos);
+        long seen = this.freeSignal.get();
+        PooledObject<T> p = pollIdle();
+        while (p == null && System.nanoTime() - startNanos < spinNanos) {
+            long signal = this.freeSignal.get();
+            if (signal != seen) {
+                seen = signal;
+                p = pollIdle();
+            } else if (strategy == WaitStrategy.SPIN) {
+                Thread.onSpinWait();
             } else {
-                p = freeObjects.pollFirst(timeWait, TimeUnit.MILLISECONDS);
+                Thread.yield();
             }
-            if (p == null)
-                throw new NoSuchElementException("获取对象超时！");
         }
-        if (!p.use()) {
-            p = null;
+        return p;
+    }
+
+    /** 从闲置队列获取一个对象，闲置队列为空时从软引用溢出层获取*/
+    private PooledObject<T> pollIdle() {
+        PooledObject<T> p = freeObjects.pollFirst();
+        if (p != null) {
+            this.idleBytes.addAndGet(-p.getRetainedSize());
+            return p;
         }
-        if (p == null) {
-            throw new IllegalStateException("更改对象状态失败！");
+        purgeSoft();
+        return pollSoft();
+    }
+
+    /** 按1/8的权重将一次等待成功的耗时计入最近的归还等待时间*/
+    void recordHandBack(long nanos) {
+        long localHandBackNanos = this.handBackNanos;
+        this.handBackNanos = localHandBackNanos + ((nanos - localHandBackNanos) >> 3);
+    }
+
+    /**
+    * @Description: 属于对象池组时，在截止时间之前等待闲置对象或组内容量，timed为false表示一直等待
+     * 容量可能由其他成员池释放，因此不能只阻塞在本池的闲置队列上：
+     * 每当组内有对象被销毁、有成员池的闲置队列或溢出层增加对象、或本池有对象进入归还中队列时被唤醒，
+     * 重新从闲置队列和溢出层获取、申请容量创建对象或取回等待钝化的对象；
+     * 等待策略为SPIN或YIELD时先与waitFree一样在自旋预算内等待本池的闲置对象，等待成功后同样更新自旋预算
+    * @Param: [group, timed, deadlineNanos]
+    * @return: api.PooledObject<T>
+    * @Date: 2026/10/19
+    */
+    private PooledObject<T> waitGroup(PoolGroup group, boolean timed, long deadlineNanos) throws Exception {
+        long startNanos = System.nanoTime();
+        WaitStrategy strategy = this.waitStrategy;
+        if (strategy != WaitStrategy.PARK) {
+            PooledObject<T> p = spinIdle(strategy, timed, deadlineNanos);
+            if (p != null) {
+                this.recordHandBack(System.nanoTime() - startNanos);
+                return p;
+            }
         }
-        //获取对象成功，激活对象
-        try {
-            factory.activateObject(p);
-        } catch (Exception e) {
-            destroy(p);
-            p = null;
-            throw new NoSuchElementException("激活对象失败！");
+        while (true) {
+            //先记录信号，避免检查之后、等待之前发出的唤醒被错过
+            long signals = group.getSignals();
+            PooledObject<T> p = pollIdle();
+            if (p == null)
+                p = create(timed, deadlineNanos);
+            if (p == null)
+                p = reclaimReturning();
+            if (p != null) {
+                this.recordHandBack(System.nanoTime() - startNanos);
+                return p;
+            }
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (timed && remainingNanos <= 0)
+                return null;
+            group.await(signals, timed ? remainingNanos : -1L);
         }
-        System.out.println(Thread.currentThread().getName()+"：获取对象成功！");
-        return p.getObject();
     }
-    
+
+    /**
+    * @Description: 根据最近的归还等待时间计算自旋预算
+     * 归还等待时间超过maxSpinNanos时自旋不划算，预算为0，否则为归还等待时间的2倍且不超过maxSpinNanos
+    * @Param: []
+    * @return: long
+    * @Date: 2026/10/18
+    */
+    public long getSpinBudgetNanos() {
+        long localHandBackNanos = this.handBackNanos;
+        long localMaxSpinNanos = this.maxSpinNanos;
+        if (localHandBackNanos > localMaxSpinNanos)
+            return 0L;
+        return Math.min(localHandBackNanos * 2, localMaxSpinNanos);
+    }
+
     /** 
     * @Description: 调用向对象池归还一个对象
      * 归还的逻辑为：
      * 1、判断归还的对象是否属于对象池
      * 2、判断归还的对象状态是否为USED
-     * 3、通过工厂钝化对象（还原对象初始状态等）
-     * 4、判断pool是否关闭或存放空闲对象的队列是否已满
+     * 3、通过工厂钝化对象（还原对象初始状态等），开启异步钝化时交给钝化线程执行
+     * 4、判断pool是否关闭、存放空闲对象的队列是否已满或占用内存是否超过上限
      * 5、将对象放回空闲对象的队列中
      * 6、考虑存在多个线程同时调用的情况，需要保证线程安全
     * @Param: [obj] 
@@ -207,6 +496,10 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
     * @Date: 2019/9/18 
     */
     public void returnObject(T obj) throws Exception {
+        //绑定在作用域中的对象在作用域关闭时才归还
+        PoolScope scope = PoolScope.current();
+        if (scope != null && scope.isBound(this, obj))
+            return;
         PooledObject<T> p = this.allObjects.get(obj);
         //归还的对象不属于对象池
         if (p == null)
@@ -214,28 +507,249 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
         //判断归还的对象状态不为USED
         if (this.allObjects.get(obj).getState() != PooledObjectState.USED)
             throw new IllegalStateException("对象已归还或出现其他未知错误！");
+        BorrowSiteProfiler localProfiler = this.borrowSiteProfiler;
+        if (localProfiler != null)
+            localProfiler.returned(p);
+        //异步钝化：对象进入归还中状态后交给钝化线程，调用者直接返回
+        //不支持归还中状态的对象由调用者线程直接钝化
+        if (this.asyncPassivation && p.beginReturn()) {
+            BlockingQueue<PooledObject<T>> queue = this.returningObjects;
+            if (queue.offer(p)) {
+                //对象池组中等待的借用者可以取回等待钝化的对象
+                signalGroup();
+                //放入队列的同时异步钝化被关闭，钝化线程可能已经退出，由调用者线程处理剩余的对象
+                if (!this.asyncPassivation)
+                    this.drainReturning(queue);
+                return;
+            }
+            //归还中队列已满，由调用者线程自行钝化
+        }
         //钝化
+        if (!this.passivate(p)) {
+            throw new IllegalStateException("对象已归还或出现其他未知错误！");
+        }
+        this.putFree(p);
+    }
+
+    /**
+    * @Description: 通过工厂钝化对象并将其状态改为空闲，钝化失败时销毁对象
+    * @Param: [p]
+    * @return: boolean
+    * @Date: 2026/10/18
+    */
+    private boolean passivate(PooledObject<T> p) throws Exception {
+        PoolEvents.Passivate event = new PoolEvents.Passivate();
+        event.begin();
         try {
             factory.passivateObject(p);
         } catch (Exception e) {
             this.destroy(p);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.poolName = this.name;
+                event.commit();
+            }
         }
-        if (!p.giveBack()) {
-            throw new IllegalStateException("对象已归还或出现其他未知错误！");
-        }
-        //判断pool是否关闭或存放空闲对象的队列是否已满
-        if (this.closed || maxFree <= this.freeObjects.size()) {
+        return p.giveBack();
+    }
+
+    /**
+    * @Description: 将已钝化的对象放回闲置队列，pool已关闭或闲置队列已满时销毁对象
+    * @Param: [p]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    private void putFree(PooledObject<T> p) throws Exception {
+        //对象在使用过程中占用的内存可能变化，钝化后重新估算
+        long size = estimateRetainedSize(p);
+        //判断pool是否关闭、存放空闲对象的队列是否已满或占用内存是否超过上限
+        if (this.closed
+                || (maxTotalBytes >= 0 && this.totalBytes.get() > maxTotalBytes)
+                || (maxIdleBytes >= 0 && this.idleBytes.get() + size > maxIdleBytes)) {
             this.destroy(p);
+        } else if (maxFree <= this.freeObjects.size()) {
+            //闲置队列已满，开启软引用溢出层时放入溢出层，否则销毁
+            if (this.softOverflow)
+                this.putSoft(p);
+            else
+                this.destroy(p);
         } else {
             //LIFO策略
+            this.idleBytes.addAndGet(size);
             if (lifo)
                 this.freeObjects.addFirst(p);
             else
                 this.freeObjects.addLast(p);
+            this.freeSignal.incrementAndGet();
+            signalGroup();
             if (this.closed) {
                 this.clear();
             }
-            System.out.println(Thread.currentThread().getName()+"：归还对象！");
+        }
+    }
+
+    /**
+    * @Description: 通过工厂估算对象占用的内存并记录在对象上，同时将与上次估算的差值计入totalBytes
+     * 只有PooledObjectImpl能记录估算结果，其他实现不参与内存统计，返回0
+    * @Param: [p]
+    * @return: long
+    * @Date: 2026/10/19
+    */
+    private long estimateRetainedSize(PooledObject<T> p) {
+        if (!(p instanceof PooledObjectImpl))
+            return 0L;
+        long oldSize = p.getRetainedSize();
+        long size = factory.estimateSize(p);
+        ((PooledObjectImpl<T>) p).setRetainedSize(size);
+        this.totalBytes.addAndGet(size - oldSize);
+        return size;
+    }
+
+    /**
+    * @Description: 将闲置队列放不下的对象放入软引用溢出层
+     * 对象从allObjects中移除，只被软引用持有，内存紧张时可以被GC回收；仍计入createCount和totalBytes
+     * 有借用者阻塞在闲置队列上时，从溢出层取出一个对象转交给闲置队列，此时闲置队列可能暂时超过maxFree
+    * @Param: [p]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    private void putSoft(PooledObject<T> p) {
+        this.allObjects.remove(p.getObject());
+        this.softObjects.addFirst(new SoftPooledObject<>(p, this.softQueue));
+        this.freeSignal.incrementAndGet();
+        signalGroup();
+        //先放入溢出层再检查等待者，与等待者先登记再检查溢出层配合，保证对象不会被错过
+        if (this.freeWaiters.get() > 0) {
+            PooledObject<T> handOff = pollSoft();
+            if (handOff != null) {
+                this.idleBytes.addAndGet(handOff.getRetainedSize());
+                this.freeObjects.addFirst(handOff);
+            }
+        }
+    }
+
+    /**
+    * @Description: 从软引用溢出层取出一个未被GC回收的对象，并重新放入allObjects
+    * @Param: []
+    * @return: api.PooledObject<T>
+    * @Date: 2026/10/18
+    */
+    private PooledObject<T> pollSoft() {
+        for (SoftPooledObject<T> ref = this.softObjects.pollFirst(); ref != null; ref = this.softObjects.pollFirst()) {
+            PooledObject<T> p = ref.get();
+            ref.clear();
+            if (p != null) {
+                this.allObjects.put(p.getObject(), p);
+                return p;
+            }
+            this.softCleared(ref);
+        }
+        return null;
+    }
+
+    /**
+    * @Description: 处理已被GC回收的软引用，保证createCount准确
+    * @Param: []
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    private void purgeSoft() {
+        for (Reference<? extends PooledObject<T>> ref = this.softQueue.poll(); ref != null; ref = this.softQueue.poll()) {
+            //已被借用者取出的引用不再重复计数
+            for (SoftPooledObject<T> soft : this.softObjects) {
+                if (soft == ref) {
+                    if (this.softObjects.remove(soft))
+                        this.softCleared(soft);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+    * @Description: 溢出层中的对象被GC回收或销毁后，扣减其占用的计数和内存
+    * @Param: [ref]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    private void softCleared(SoftPooledObject<T> ref) {
+        this.createCount.decrementAndGet();
+        this.totalBytes.addAndGet(-ref.retainedSize);
+        PoolGroup localPoolGroup = this.poolGroup;
+        if (localPoolGroup != null)
+            localPoolGroup.release(this);
+    }
+
+    /**
+    * @Description: 销毁溢出层中的一个对象，对象未被GC回收时仍通过工厂销毁
+    * @Param: [ref]
+    * @return: void
+    * @Date: 2026/10/19
+    */
+    private void destroySoft(SoftPooledObject<T> ref) throws Exception {
+        PooledObject<T> p = ref.get();
+        ref.clear();
+        this.softCleared(ref);
+        if (p != null) {
+            p.destory();
+            factoryDestroy(p);
+        }
+    }
+
+    /**
+    * @Description: 对象池已满时，从归还中队列取回一个尚未开始钝化的对象，由借用者线程自行钝化
+    * @Param: []
+    * @return: api.PooledObject<T>
+    * @Date: 2026/10/18
+    */
+    private PooledObject<T> reclaimReturning() throws Exception {
+        BlockingQueue<PooledObject<T>> queue = this.returningObjects;
+        if (queue == null)
+            return null;
+        for (PooledObject<T> p = queue.poll(); p != null; p = queue.poll()) {
+            if (p.getState() == PooledObjectState.RETURNING && this.passivate(p)) {
+                //与放回闲置队列时一样，钝化后重新估算占用的内存
+                this.estimateRetainedSize(p);
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+    * @Description: 钝化线程的执行逻辑，依次钝化归还中队列里的对象并放回闲置队列
+     * 线程被中断（关闭异步钝化或关闭对象池）后处理完队列中剩余的对象再退出
+    * @Param: [queue]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    private void passivateReturning(BlockingQueue<PooledObject<T>> queue) {
+        while (true) {
+            PooledObject<T> p;
+            try {
+                p = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            this.passivateReturned(p);
+        }
+        this.drainReturning(queue);
+    }
+
+    /** 由当前线程钝化归还中队列里剩余的对象*/
+    private void drainReturning(BlockingQueue<PooledObject<T>> queue) {
+        for (PooledObject<T> p = queue.poll(); p != null; p = queue.poll())
+            this.passivateReturned(p);
+    }
+
+    private void passivateReturned(PooledObject<T> p) {
+        try {
+            //对象可能已被借用者取回或被销毁
+            if (p.getState() == PooledObjectState.RETURNING && this.passivate(p))
+                this.putFree(p);
+        } catch (Exception e) {
+            logger.error("异步钝化对象失败：" + e.getMessage());
         }
     }
 
@@ -250,6 +764,9 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
         PooledObject<T> p = this.allObjects.get(obj);
         if (p == null)
             throw new IllegalStateException("要销毁的对象不在对象池中！");
+        PoolScope scope = PoolScope.current();
+        if (scope != null)
+            scope.unbind(this, obj);
         synchronized (p) {
             this.destroy(p);
         }
@@ -266,10 +783,13 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
         if (this.closed)
             throw new IllegalStateException("对象池未开启或已关闭！");
         PooledObject<T> p = this.create();
+        this.idleBytes.addAndGet(p.getRetainedSize());
         if (lifo)
             this.freeObjects.addFirst(p);
         else
             this.freeObjects.addLast(p);
+        this.freeSignal.incrementAndGet();
+        signalGroup();
     }
 
     /** 
@@ -294,47 +814,113 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
                 }
             }
         }
+        BorrowSiteProfiler localProfiler = this.borrowSiteProfiler;
         Iterator itr = removeList.iterator();
         while(itr.hasNext()) {
             PooledObject<T> pooledObject = (PooledObject) itr.next();
+            //采样到借出位置时记录对象是从哪里借出的
+            StackTraceElement[] origin = localProfiler == null ? null : localProfiler.abandoned(pooledObject);
+            if (origin != null) {
+                Throwable t = new Throwable("借出位置");
+                t.setStackTrace(origin);
+                logger.warn("借出时间过长的对象被移除", t);
+            }
+            PoolEvents.Abandon event = new PoolEvents.Abandon();
+            if (event.shouldCommit()) {
+                event.poolName = this.name;
+                event.holdTime = System.currentTimeMillis() - pooledObject.getLastBorrowTime();
+                event.borrowSite = origin == null || origin.length == 0 ? null : origin[0].toString();
+                event.commit();
+            }
             this.destroy(pooledObject);
         }
     }
 
     /** 
     * @Description: 处理闲置队列中闲置过久的对象 
-     * 如果闲置队列中某个对象闲置时间超过destoryTime则将其销毁，同时会保证在销毁时闲置队列中的对象数量不少于minFree
+     * 按照回收策略给出的顺序检查空闲对象，由回收策略判断是否销毁（默认为闲置时间超过destoryTime），
+     * 同时会保证在销毁时闲置队列中的对象数量不少于minFree
     * @Param: [] 
     * @return: void 
     * @Author: 薛谌
     * @Date: 2019/9/18 
     */
     public void evict() throws Exception{
-        if(destoryTime<0)
+        if(destoryTime<0 && maxTotalBytes<0 && maxIdleBytes<0)
             return;
         if (this.closed)
             throw new IllegalStateException("对象池未打开或已关闭！");
-        if(freeObjects.size()>0){   //闲置队列中有对象
-            boolean ifEvict = true;   //标记队尾对象是否被回收，若队尾对象都没有被回收，其他的对象不用再看
-            while(ifEvict && freeObjects.size()>0){
-                ifEvict = false;
-                PooledObject<T> objectToEvict= freeObjects.peekLast();
-                synchronized (objectToEvict){
-                    if(objectToEvict.getState() == PooledObjectState.FREE &&    //确保当前对象仍为空闲
-                            freeObjects.size()>this.getMinFree() &&            //当前空闲对象数量大于最小空闲数量
-                            this.destoryTime<System.currentTimeMillis()-objectToEvict.getLastReturnTime() ){   //当前对象空闲时间大于设定值
-                        objectToEvict.destory();
-                        ifEvict = true;
-                    }
+        if(destoryTime>=0 && freeObjects.size()>this.getMinFree()){   //闲置队列中有可回收的对象
+            final EvictionPolicy<T> policy = this.evictionPolicy;
+            List<PooledObject<T>> candidates = new ArrayList<>(freeObjects);
+            Collections.sort(candidates, new Comparator<PooledObject<T>>() {
+                @Override
+                public int compare(PooledObject<T> p1, PooledObject<T> p2) {
+                    return policy.compare(p1, p2);
                 }
-                if(ifEvict){
+            });
+            long now = System.currentTimeMillis();
+            for (PooledObject<T> objectToEvict : candidates) {
+                if (freeObjects.size() <= this.getMinFree())   //保证空闲对象数量不少于最小空闲数量
+                    break;
+                //先从闲置队列中移除，移除失败说明对象已被借出
+                if (policy.evict(objectToEvict, now - objectToEvict.getLastReturnTime(), this.destoryTime)
+                        && freeObjects.remove(objectToEvict)) {
+                    this.idleBytes.addAndGet(-objectToEvict.getRetainedSize());
+                    evictEvent(objectToEvict, "policy");
                     this.destroy(objectToEvict);
                 }
             }
         }
+        evictBytes();
+        purgeSoft();
         removeAbandoned();
     }
 
+    /**
+    * @Description: 对象池占用内存超过maxTotalBytes或maxIdleBytes时销毁空闲对象，直到不再超过上限
+     * 超过maxTotalBytes时先销毁软引用溢出层中最早放入的对象，再从闲置队列中最大的对象开始销毁
+     * 内存上限优先于minFree，以保证对象池占用的内存可预期
+    * @Param: []
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    private void evictBytes() throws Exception {
+        //溢出层中的对象仍计入totalBytes，先从最早放入的开始销毁
+        while (maxTotalBytes >= 0 && totalBytes.get() > maxTotalBytes) {
+            SoftPooledObject<T> ref = this.softObjects.pollLast();
+            if (ref == null)
+                break;
+            PooledObject<T> soft = ref.get();
+            if (soft != null)
+                evictEvent(soft, "bytes");
+            this.destroySoft(ref);
+        }
+        if (!overBytes() || freeObjects.isEmpty())
+            return;
+        List<PooledObject<T>> candidates = new ArrayList<>(freeObjects);
+        Collections.sort(candidates, new Comparator<PooledObject<T>>() {
+            @Override
+            public int compare(PooledObject<T> p1, PooledObject<T> p2) {
+                return Long.compare(p2.getRetainedSize(), p1.getRetainedSize());
+            }
+        });
+        for (PooledObject<T> objectToEvict : candidates) {
+            if (!overBytes())
+                break;
+            if (freeObjects.remove(objectToEvict)) {
+                this.idleBytes.addAndGet(-objectToEvict.getRetainedSize());
+                evictEvent(objectToEvict, "bytes");
+                this.destroy(objectToEvict);
+            }
+        }
+    }
+
+    private boolean overBytes() {
+        return (maxTotalBytes >= 0 && totalBytes.get() > maxTotalBytes)
+                || (maxIdleBytes >= 0 && idleBytes.get() > maxIdleBytes);
+    }
+
     /** 
     * @Description:  销毁创建的对象
     * @Param: [p] 
@@ -344,9 +930,106 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
     */
     public void destroy(PooledObject<T> p) throws Exception {
         p.destory();
-        this.freeObjects.remove(p);
-        this.allObjects.remove(p.getObject());
-        factory.destroyObject(p);
+        if (this.freeObjects.remove(p))
+            this.idleBytes.addAndGet(-p.getRetainedSize());
+        //只有第一次销毁时才扣减计数，避免重复销毁导致计数错误
+        if (this.allObjects.remove(p.getObject()) != null) {
+            BorrowSiteProfiler localProfiler = this.borrowSiteProfiler;
+            if (localProfiler != null)
+                localProfiler.destroyed(p);
+            this.createCount.decrementAndGet();
+            this.totalBytes.addAndGet(-p.getRetainedSize());
+            PoolGroup localPoolGroup = this.poolGroup;
+            if (localPoolGroup != null)
+                localPoolGroup.release(this);
+        }
+        factoryDestroy(p);
+    }
+
+    /**
+    * @Description: 通过工厂销毁对象，并记录销毁耗时
+    * @Param: [p]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    private void factoryDestroy(PooledObject<T> p) throws Exception {
+        PoolEvents.Destroy event = new PoolEvents.Destroy();
+        event.begin();
+        try {
+            factory.destroyObject(p);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.poolName = this.name;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+    * @Description: 记录空闲对象被回收的事件
+    * @Param: [p, reason]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    private void evictEvent(PooledObject<T> p, String reason) {
+        PoolEvents.Evict event = new PoolEvents.Evict();
+        if (event.shouldCommit()) {
+            event.poolName = this.name;
+            event.reason = reason;
+            event.idleTime = System.currentTimeMillis() - p.getLastReturnTime();
+            event.retainedSize = p.getRetainedSize();
+            event.commit();
+        }
+    }
+
+    /**
+    * @Description: 回收一个空闲对象，供对象池组在共享容量不足时调用
+     * 优先回收软引用溢出层中最早放入的对象，其次是闲置队列中闲置最久的对象
+    * @Param: []
+    * @return: boolean
+    * @Date: 2026/10/18
+    */
+    boolean reclaimIdle() throws Exception {
+        SoftPooledObject<T> ref = this.softObjects.pollLast();
+        if (ref != null) {
+            PooledObject<T> soft = ref.get();
+            if (soft != null)
+                evictEvent(soft, "group");
+            this.destroySoft(ref);
+            return true;
+        }
+        PooledObject<T> p = this.freeObjects.pollLast();
+        if (p == null)
+            return false;
+        this.idleBytes.addAndGet(-p.getRetainedSize());
+        evictEvent(p, "group");
+        this.destroy(p);
+        return true;
+    }
+
+    /** 闲置队列增加了对象，唤醒对象池组中等待容量的借用者*/
+    private void signalGroup() {
+        PoolGroup localPoolGroup = this.poolGroup;
+        if (localPoolGroup != null)
+            localPoolGroup.signal();
+    }
+
+    /**
+    * @Description: 获取闲置队列和软引用溢出层中最早归还的对象的归还时间，都为空时返回Long.MAX_VALUE
+    * @Param: []
+    * @return: long
+    * @Date: 2026/10/18
+    */
+    long getOldestFreeReturnTime() {
+        long oldest = Long.MAX_VALUE;
+        PooledObject<T> p = this.freeObjects.peekLast();
+        if (p != null)
+            oldest = p.getLastReturnTime();
+        SoftPooledObject<T> ref = this.softObjects.peekLast();
+        if (ref != null)
+            oldest = Math.min(oldest, ref.returnTime);
+        return oldest;
     }
 
     /** 
@@ -357,12 +1040,21 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
     * @Date: 2019/9/18 
     */
     public PooledObject<T> create() throws Exception {
+        long localMaxWaitTime = this.getMaxWaitTime();   //MaxWaitTime小于等于0表示无限期等待
+        return create(localMaxWaitTime > 0L, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(localMaxWaitTime, 0L)));
+    }
+
+    /**
+    * @Description: 创建新的对象，其他线程正在创建对象时最多等待到截止时间，timed为false表示无限期等待
+    * @Param: [timed, deadlineNanos]
+    * @return: api.PooledObject<T>
+    * @Date: 2026/10/19
+    */
+    private PooledObject<T> create(boolean timed, long deadlineNanos) throws Exception {
         int localMaxTotal = this.getMaxTotal();   //设置对象池大小，若为负则设为最大整数
         if (localMaxTotal < 0) {
             localMaxTotal = Integer.MAX_VALUE;
         }
-        long localStartTimeMillis = System.currentTimeMillis();   //开始时间
-        long localMaxWaitTimeMillis = Math.max(this.getMaxWaitTime(), 0L);   //MaxWaitTime小于等于0表示无限期等待
         Boolean createFlag = null;    //是否可以获取对象
 
         //以下判断当前线程是否可以创建对象
@@ -373,21 +1065,20 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
                     this.createCount.decrementAndGet();
                     if (this.makeObjectCount == 0L) {    // 无其他线程正在调用makeObject()方法，意味着没有机会再创建对象，只能等待其他对象被归还
                         createFlag = Boolean.FALSE;     // 跳出循环
-                        System.out.println(Thread.currentThread().getName()+"：对象池确认已满，创建失败");
                     } else {   //有其他线程在makeObject()，若它们创建失败，当前线程有机会再次创建，因此先等待
-                        this.makeObjectCountLock.wait(localMaxWaitTimeMillis);
-                        System.out.println(Thread.currentThread().getName()+"：对象池暂时满，等待");
+                        if (timed)
+                            TimeUnit.NANOSECONDS.timedWait(this.makeObjectCountLock, deadlineNanos - System.nanoTime());
+                        else
+                            this.makeObjectCountLock.wait();
                     }
                 } else {              //当前未达到上限
                     ++this.makeObjectCount;
                     createFlag = Boolean.TRUE;
-                    System.out.println(Thread.currentThread().getName()+"：对象池未满，可创建");
                 }
             }
             //如果当前线程不是无限期等待，且等待超时
-            if (createFlag == null && localMaxWaitTimeMillis > 0L && System.currentTimeMillis() - localStartTimeMillis >= localMaxWaitTimeMillis) {
+            if (createFlag == null && timed && System.nanoTime() - deadlineNanos >= 0L) {
                 createFlag = Boolean.FALSE;
-                System.out.println(Thread.currentThread().getName()+"：等待超时，创建失败");
             }
         }
 
@@ -395,22 +1086,42 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
             return null;
         } else {           //可创建对象
                 PooledObject<T> p;
+                PoolGroup localPoolGroup = this.poolGroup;
+                boolean groupAcquired = false;
                 try {
+                    //对象池组的共享容量不足时，视为对象池已满
+                    if (localPoolGroup != null) {
+                        if (!localPoolGroup.acquire(this)) {
+                            this.createCount.decrementAndGet();
+                            return null;
+                        }
+                        groupAcquired = true;
+                    }
+                    PoolEvents.Create event = new PoolEvents.Create();
+                    event.begin();
+                    long createStartNanos = System.nanoTime();
                     p = this.factory.createObject();
+                    if (p instanceof PooledObjectImpl)
+                        ((PooledObjectImpl<T>) p).setCreateCost(System.nanoTime() - createStartNanos);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.poolName = this.name;
+                        event.commit();
+                    }
                 } catch (Throwable e) {
                     this.createCount.decrementAndGet();
-                    System.out.println(Thread.currentThread().getName()+"：创建异常");
+                    if (groupAcquired)
+                        localPoolGroup.release(this);
                     throw e;
                 } finally {
                     //当前线程创建结束，唤醒其他等待线程
                         synchronized(this.makeObjectCountLock) {
                             --this.makeObjectCount;
                             this.makeObjectCountLock.notifyAll();
-                            System.out.println(Thread.currentThread().getName()+"：当前线程创建结束");
                         }
                 }
-                System.out.println(Thread.currentThread().getName()+"：创建成功");
                 this.createdCount.incrementAndGet();    //将创建总数增加
+                this.estimateRetainedSize(p);
                 this.allObjects.put(p.getObject(), p);   //将对象放入allObjects
                 return p;
             }
@@ -425,10 +1136,12 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
         */
     public void close() {
         closed = true;
+        this.asyncPassivation = false;
+        this.stopPassivation();
     }
 
     /** 
-    * @Description: 清空闲置队列
+    * @Description: 清空闲置队列和软引用溢出层
     * @Param: [] 
     * @return: void 
     * @Author: 薛谌
@@ -436,9 +1149,12 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
     */
     public void clear() throws Exception {
         for (PooledObject p = (PooledObject) this.freeObjects.poll(); p != null; p = (PooledObject) this.freeObjects.poll()) {
+            this.idleBytes.addAndGet(-p.getRetainedSize());
             this.destroy(p);
         }
-
+        //软引用溢出层中未被GC回收的对象仍通过工厂销毁
+        for (SoftPooledObject<T> ref = this.softObjects.pollFirst(); ref != null; ref = this.softObjects.pollFirst())
+            this.destroySoft(ref);
     }
 
     public long getMaxWaitTime() {
@@ -513,6 +1229,143 @@ public class ObjectPoolImpl<T> implements ObjectPool<T> {
         return maxTotal;
     }
 
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    public void setMaxTotalBytes(long maxTotalBytes) {
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    public long getMaxIdleBytes() {
+        return maxIdleBytes;
+    }
+
+    public void setMaxIdleBytes(long maxIdleBytes) {
+        this.maxIdleBytes = maxIdleBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public long getIdleBytes() {
+        return idleBytes.get();
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        if (waitStrategy == null)
+            throw new IllegalArgumentException("不合法的等待策略！");
+        this.waitStrategy = waitStrategy;
+    }
+
+    public long getMaxSpinNanos() {
+        return maxSpinNanos;
+    }
+
+    public void setMaxSpinNanos(long maxSpinNanos) {
+        if (maxSpinNanos < 0) {
+            logger.error("错误的maxSpinNanos参数："+maxSpinNanos);
+            return;
+        }
+        this.maxSpinNanos = maxSpinNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BorrowSiteProfiler getBorrowSiteProfiler() {
+        return borrowSiteProfiler;
+    }
+
+    public void setBorrowSiteProfiler(BorrowSiteProfiler borrowSiteProfiler) {
+        this.borrowSiteProfiler = borrowSiteProfiler;
+    }
+
+    public boolean isSoftOverflow() {
+        return softOverflow;
+    }
+
+    public void setSoftOverflow(boolean softOverflow) {
+        this.softOverflow = softOverflow;
+    }
+
+    public boolean isAsyncPassivation() {
+        return asyncPassivation;
+    }
+
+    /**
+    * @Description: 开启或关闭异步钝化
+     * 首次开启时创建容量为maxTotal的归还中队列；开启时启动钝化线程，关闭时停止钝化线程，
+     * 已在队列中的对象由钝化线程处理完后再退出
+    * @Param: [asyncPassivation]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    public synchronized void setAsyncPassivation(boolean asyncPassivation) {
+        if (!asyncPassivation) {
+            this.asyncPassivation = false;
+            this.stopPassivation();
+            return;
+        }
+        if (this.closed)
+            throw new IllegalStateException("对象池已关闭！");
+        if (this.returningObjects == null)
+            this.returningObjects = new ArrayBlockingQueue<>(Math.max(maxTotal, 1));
+        if (this.passivationThread == null) {
+            final BlockingQueue<PooledObject<T>> queue = this.returningObjects;
+            this.passivationThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    passivateReturning(queue);
+                }
+            }, this.name + "-passivation");
+            this.passivationThread.setDaemon(true);
+            this.passivationThread.start();
+        }
+        this.asyncPassivation = true;
+    }
+
+    /** 中断钝化线程，线程处理完队列中剩余的对象后退出*/
+    private synchronized void stopPassivation() {
+        Thread thread = this.passivationThread;
+        if (thread == null)
+            return;
+        this.passivationThread = null;
+        thread.interrupt();
+    }
+
+    public EvictionPolicy<T> getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(EvictionPolicy<T> evictionPolicy) {
+        if (evictionPolicy == null)
+            throw new IllegalArgumentException("不合法的回收策略！");
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    public int getCreateCount() {
+        return (int) createCount.get();
+    }
+
+    public PoolGroup getPoolGroup() {
+        return poolGroup;
+    }
+
+    void setPoolGroup(PoolGroup poolGroup) {
+        this.poolGroup = poolGroup;
+    }
+
     public void setMaxTotal(int maxTotal) {
         if(maxTotal<maxFree){
             logger.error("错误的maxTotal参数："+maxTotal);
@@ -0,0 +1,109 @@
+package impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * 对象池发出的JFR（Java Flight Recorder）事件。
+ * 未开启记录时事件不会被提交，只有begin/commit的开销；带耗时的事件可以通过阈值过滤掉耗时较短的记录。
+ */
+final class PoolEvents {
+
+    private PoolEvents() {
+    }
+
+    @Name("objectpool.Borrow")
+    @Label("Borrow")
+    @Category("Object Pool")
+    @Description("调用者从对象池获取对象，耗时包含等待创建或归还的时间")
+    @Threshold("1 ms")
+    static class Borrow extends Event {
+        @Label("Pool Name")
+        String poolName;
+        @Label("Outcome")
+        @Description("free、soft、created、reclaimed、waited、timeout或failed")
+        String outcome;
+    }
+
+    @Name("objectpool.Create")
+    @Label("Create")
+    @Category("Object Pool")
+    @Description("通过工厂创建新对象")
+    @Threshold("1 ms")
+    static class Create extends Event {
+        @Label("Pool Name")
+        String poolName;
+    }
+
+    @Name("objectpool.Activate")
+    @Label("Activate")
+    @Category("Object Pool")
+    @Description("借出对象前通过工厂激活对象")
+    @Threshold("1 ms")
+    static class Activate extends Event {
+        @Label("Pool Name")
+        String poolName;
+    }
+
+    @Name("objectpool.Passivate")
+    @Label("Passivate")
+    @Category("Object Pool")
+    @Description("归还对象时通过工厂钝化对象")
+    @Threshold("1 ms")
+    static class Passivate extends Event {
+        @Label("Pool Name")
+        String poolName;
+    }
+
+    @Name("objectpool.Destroy")
+    @Label("Destroy")
+    @Category("Object Pool")
+    @Description("通过工厂销毁对象")
+    @Threshold("1 ms")
+    static class Destroy extends Event {
+        @Label("Pool Name")
+        String poolName;
+    }
+
+    @Name("objectpool.Evict")
+    @Label("Evict")
+    @Category("Object Pool")
+    @Description("空闲对象被回收")
+    @StackTrace(false)
+    static class Evict extends Event {
+        @Label("Pool Name")
+        String poolName;
+        @Label("Reason")
+        @Description("policy（回收策略）、bytes（内存上限）或group（对象池组回收）")
+        String reason;
+        @Label("Idle Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long idleTime;
+        @Label("Retained Size")
+        @DataAmount
+        long retainedSize;
+    }
+
+    @Name("objectpool.Abandon")
+    @Label("Abandon")
+    @Category("Object Pool")
+    @Description("借出时间超过borrowTimeout的对象被移除")
+    @StackTrace(false)
+    static class Abandon extends Event {
+        @Label("Pool Name")
+        String poolName;
+        @Label("Hold Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long holdTime;
+        @Label("Borrow Site")
+        @Description("采样到的借出位置，未采样时为空")
+        String borrowSite;
+    }
+}
@@ -0,0 +1,249 @@
+package impl;
+
+import org.apache.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个对象池共享的容量预算。
+ * 成员对象池在创建新对象前需要从预算中申请容量，销毁对象时归还容量；
+ * 每个成员可以设置预留容量（reserved），预留部分始终可用，超出预留的部分从共享容量中申请。
+ * 除对象数量外，还可以通过maxTotalBytes限制组内所有对象估算占用的内存之和：与对象池的maxTotalBytes一样，
+ * 占用内存超过（不含等于）上限后不再分配共享容量。创建前无法得知新对象的大小，因此内存之和最多超出上限一个对象；
+ * 预留容量不受内存上限限制，始终可用。
+ * 当共享容量耗尽时，会从最冷（空闲对象闲置最久）的其他成员池中回收空闲对象以腾出容量；
+ * 仍然没有容量时，借用者会等待，直到组内有对象被销毁或有成员池的闲置队列增加对象后再重试。
+ */
+public class PoolGroup {
+    Logger logger = Logger.getLogger(PoolGroup.class);
+    /**
+     * 组内所有对象池的对象总数上限
+     */
+    private final int maxTotal;
+    /**
+     * 组内所有对象估算占用内存的上限，单位字节，默认为-1表示不限制
+     */
+    private volatile long maxTotalBytes = -1L;
+    /**
+     * 所有成员预留容量之和
+     */
+    private int totalReserved;
+    /**
+     * 超出预留部分、占用共享容量的对象数
+     */
+    private int sharedUsed;
+    /**
+     * 容量释放或成员池闲置队列增加对象的次数，用于唤醒等待容量的借用者
+     */
+    private long signals;
+    /**
+     * 成员对象池及其容量占用情况
+     */
+    private final Map<ObjectPoolImpl<?>, Member> members = new LinkedHashMap<>();
+
+    /**
+     * 成员对象池在组内的容量占用情况
+     */
+    private static class Member {
+        /** 预留容量*/
+        final int reserved;
+        /** 当前已占用容量*/
+        int used;
+
+        Member(int reserved) {
+            this.reserved = reserved;
+        }
+    }
+
+    public PoolGroup(int maxTotal) {
+        if (maxTotal <= 0)
+            throw new IllegalArgumentException("不合法的对象池组大小参数");
+        this.maxTotal = maxTotal;
+    }
+
+    /**
+    * @Description: 将对象池加入组中，不预留容量
+    * @Param: [pool]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    public void register(ObjectPoolImpl<?> pool) {
+        register(pool, 0);
+    }
+
+    /**
+    * @Description: 将对象池加入组中，并为其预留reserved个对象的容量
+     * 对象池中已有的对象会立即计入占用
+    * @Param: [pool, reserved]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    public synchronized void register(ObjectPoolImpl<?> pool, int reserved) {
+        if (pool == null || reserved < 0)
+            throw new IllegalArgumentException("不合法的对象池组成员参数");
+        if (members.containsKey(pool) || pool.getPoolGroup() != null)
+            throw new IllegalStateException("对象池已属于某个对象池组！");
+        if (totalReserved + reserved > maxTotal)
+            throw new IllegalArgumentException("预留容量超过对象池组上限");
+        Member member = new Member(reserved);
+        member.used = pool.getCreateCount();
+        sharedUsed += Math.max(0, member.used - reserved);
+        totalReserved += reserved;
+        members.put(pool, member);
+        pool.setPoolGroup(this);
+    }
+
+    /**
+    * @Description: 将对象池移出组，其占用的容量一并释放
+    * @Param: [pool]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    public synchronized void unregister(ObjectPoolImpl<?> pool) {
+        Member member = members.remove(pool);
+        if (member == null)
+            return;
+        sharedUsed -= Math.max(0, member.used - member.reserved);
+        totalReserved -= member.reserved;
+        pool.setPoolGroup(null);
+    }
+
+    /**
+    * @Description: 为对象池申请一个对象的容量
+     * 申请的逻辑为：
+     * 1、预留容量或共享容量未用完时直接占用
+     * 2、否则从最冷的其他成员池中回收一个空闲对象，再重新申请
+     * 3、没有可回收的空闲对象时申请失败
+    * @Param: [pool]
+    * @return: boolean
+    * @Date: 2026/10/18
+    */
+    boolean acquire(ObjectPoolImpl<?> pool) throws Exception {
+        while (true) {
+            ObjectPoolImpl<?> victim;
+            synchronized (this) {
+                if (tryAcquire(pool))
+                    return true;
+                victim = coldestPool(pool);
+            }
+            //回收时不持有组锁，避免工厂的销毁操作阻塞其他成员
+            if (victim == null || !victim.reclaimIdle())
+                return false;
+            logger.debug("对象池组容量不足，已从最冷的对象池回收空闲对象");
+        }
+    }
+
+    /**
+    * @Description: 对象池销毁一个对象后归还其容量
+    * @Param: [pool]
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    synchronized void release(ObjectPoolImpl<?> pool) {
+        Member member = members.get(pool);
+        if (member == null || member.used == 0)
+            return;
+        if (member.used > member.reserved)
+            sharedUsed--;
+        member.used--;
+        signals++;
+        notifyAll();
+    }
+
+    /** 成员池的闲置队列增加了可回收的对象，唤醒等待容量的借用者*/
+    synchronized void signal() {
+        signals++;
+        notifyAll();
+    }
+
+    synchronized long getSignals() {
+        return signals;
+    }
+
+    /**
+    * @Description: 在signals之后没有新的信号时等待，最多等待nanos纳秒，nanos<0表示一直等待
+    * @Param: [signals, nanos]
+    * @return: void
+    * @Date: 2026/10/19
+    */
+    synchronized void await(long signals, long nanos) throws InterruptedException {
+        if (this.signals != signals)
+            return;
+        if (nanos < 0)
+            wait();
+        else
+            TimeUnit.NANOSECONDS.timedWait(this, nanos);
+    }
+
+    private boolean tryAcquire(ObjectPoolImpl<?> pool) {
+        Member member = members.get(pool);
+        if (member == null)
+            return true;
+        //预留容量不检查内存上限
+        if (member.used < member.reserved) {
+            member.used++;
+            return true;
+        }
+        if (sharedUsed < maxTotal - totalReserved && !overBytes()) {
+            sharedUsed++;
+            member.used++;
+            return true;
+        }
+        return false;
+    }
+
+    /** 组内对象估算占用的内存之和是否超过maxTotalBytes，与对象池的判断一致*/
+    private boolean overBytes() {
+        if (maxTotalBytes < 0)
+            return false;
+        long bytes = 0L;
+        for (ObjectPoolImpl<?> pool : members.keySet())
+            bytes += pool.getTotalBytes();
+        return bytes > maxTotalBytes;
+    }
+
+    /**
+    * @Description: 找出占用了共享容量、且空闲对象闲置最久的其他成员池
+     * 只占用预留容量的成员不会被回收，回收它的对象也无法腾出共享容量
+    * @Param: [requester]
+    * @return: impl.ObjectPoolImpl<?>
+    * @Date: 2026/10/18
+    */
+    private ObjectPoolImpl<?> coldestPool(ObjectPoolImpl<?> requester) {
+        ObjectPoolImpl<?> coldest = null;
+        long coldestTime = Long.MAX_VALUE;
+        for (Map.Entry<ObjectPoolImpl<?>, Member> entry : members.entrySet()) {
+            ObjectPoolImpl<?> pool = entry.getKey();
+            Member member = entry.getValue();
+            if (pool == requester || member.used <= member.reserved)
+                continue;
+            long idleSince = pool.getOldestFreeReturnTime();
+            if (idleSince < coldestTime) {
+                coldestTime = idleSince;
+                coldest = pool;
+            }
+        }
+        return coldest;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    public void setMaxTotalBytes(long maxTotalBytes) {
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    public synchronized int getUsed() {
+        int used = 0;
+        for (Member member : members.values())
+            used += member.used;
+        return used;
+    }
+}
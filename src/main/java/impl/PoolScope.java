@@ -0,0 +1,130 @@
+package impl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 借用作用域，绑定在打开它的线程上。
+ * 作用域内第一次从某个对象池借出的对象会绑定到作用域，之后在同一线程中再次借用时直接返回这个对象，
+ * 不再经过闲置队列，也不再激活；作用域内的归还不做任何操作，对象在作用域关闭时才真正归还给对象池（只钝化一次）。
+ * 作用域可以嵌套，内层作用域会复用外层作用域已绑定的对象，必须按打开的相反顺序关闭。
+ * 用法：
+ * try (PoolScope scope = PoolScope.open()) {
+ *     ...
+ * }
+ */
+public final class PoolScope implements AutoCloseable {
+    /**
+     * 当前线程正在使用的作用域
+     */
+    private static final ThreadLocal<PoolScope> CURRENT = new ThreadLocal<>();
+    /**
+     * 外层作用域，关闭后恢复为当前作用域
+     */
+    private final PoolScope parent;
+    /**
+     * 打开作用域的线程
+     */
+    private final Thread owner;
+    /**
+     * 绑定到作用域的对象，以对象池为键
+     */
+    private final Map<ObjectPoolImpl<?>, Object> bound = new IdentityHashMap<>(4);
+    private boolean closed = false;
+
+    private PoolScope(PoolScope parent) {
+        this.parent = parent;
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+    * @Description: 在当前线程打开一个作用域
+    * @Param: []
+    * @return: impl.PoolScope
+    * @Date: 2026/10/18
+    */
+    public static PoolScope open() {
+        PoolScope scope = new PoolScope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /** 获取当前线程正在使用的作用域，没有时返回null*/
+    public static PoolScope current() {
+        return CURRENT.get();
+    }
+
+    /** 查找本作用域及外层作用域中绑定的对象*/
+    Object lookup(ObjectPoolImpl<?> pool) {
+        for (PoolScope scope = this; scope != null; scope = scope.parent) {
+            Object obj = scope.bound.get(pool);
+            if (obj != null)
+                return obj;
+        }
+        return null;
+    }
+
+    /** 将新借出的对象绑定到本作用域*/
+    void bind(ObjectPoolImpl<?> pool, Object obj) {
+        bound.put(pool, obj);
+    }
+
+    /** 判断对象是否绑定在本作用域或外层作用域中*/
+    boolean isBound(ObjectPoolImpl<?> pool, Object obj) {
+        return lookup(pool) == obj;
+    }
+
+    /** 对象被销毁时解除绑定*/
+    void unbind(ObjectPoolImpl<?> pool, Object obj) {
+        for (PoolScope scope = this; scope != null; scope = scope.parent) {
+            if (scope.bound.get(pool) == obj) {
+                scope.bound.remove(pool);
+                return;
+            }
+        }
+    }
+
+    /**
+    * @Description: 关闭作用域，将绑定的对象归还给各自的对象池
+     * 某个对象归还失败时仍会继续归还其他对象，最后抛出第一个异常，受检异常包装为IllegalStateException
+    * @Param: []
+    * @return: void
+    * @Date: 2026/10/18
+    */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        if (Thread.currentThread() != owner || CURRENT.get() != this)
+            throw new IllegalStateException("作用域只能在打开它的线程中按顺序关闭！");
+        closed = true;
+        if (parent == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(parent);
+        List<Map.Entry<ObjectPoolImpl<?>, Object>> entries = new ArrayList<>(bound.entrySet());
+        bound.clear();
+        RuntimeException first = null;
+        for (Map.Entry<ObjectPoolImpl<?>, Object> entry : entries) {
+            try {
+                returnBound(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                if (first == null)
+                    first = e;
+            } catch (Exception e) {
+                if (first == null)
+                    first = new IllegalStateException("归还作用域绑定的对象失败！", e);
+            }
+        }
+        if (first != null)
+            throw first;
+    }
+
+    /** 绑定的对象由对象池自身借出，类型一定匹配*/
+    @SuppressWarnings("unchecked")
+    private static <T> void returnBound(ObjectPoolImpl<T> pool, Object obj) throws Exception {
+        pool.returnObject((T) obj);
+    }
+}
@@ -4,11 +4,14 @@ import api.PooledObject;
 
 public class PooledObjectImpl<T> implements PooledObject<T> {
     private final T object;                  //对象本身
-    private PooledObjectState state;         //对象在对象池中的状态
+    private volatile PooledObjectState state; //对象在对象池中的状态
     private final long createTime;         //对象创建的时间
     private volatile long lastBorrowTime; //对象上一次被借出使用的时间
     private volatile long lastUseTime;    //对象上一次使用的时间
     private volatile long lastReturnTime; //对象上一次归还的时间
+    private volatile long borrowCount;    //对象被借出的次数
+    private volatile long createCost;     //创建对象的耗时，单位纳秒
+    private volatile long retainedSize;   //对象估算的占用内存，单位字节
 
     public PooledObjectImpl(T object){
         this.object = object;
@@ -56,6 +59,22 @@ public class PooledObjectImpl<T> implements PooledObject<T> {
             this.state = PooledObjectState.USED;
             this.lastBorrowTime = System.currentTimeMillis();
             this.lastUseTime = this.lastBorrowTime;
+            this.borrowCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+    * @Description: 有某个线程开始归还该对象，对象进入归还中状态，等待钝化
+    * @Param: []
+    * @return: boolean
+    * @Date: 2026/10/18
+    */
+    @Override
+    public synchronized boolean beginReturn() {
+        if(this.state == PooledObjectState.USED){
+            this.state = PooledObjectState.RETURNING;
             return true;
         }
         return false;
@@ -113,4 +132,24 @@ public class PooledObjectImpl<T> implements PooledObject<T> {
     public long getLastUseTime() {
         return lastUseTime;
     }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getCreateCost() {
+        return createCost;
+    }
+
+    void setCreateCost(long createCost) {
+        this.createCost = createCost;
+    }
+
+    public long getRetainedSize() {
+        return retainedSize;
+    }
+
+    void setRetainedSize(long retainedSize) {
+        this.retainedSize = retainedSize;
+    }
 }
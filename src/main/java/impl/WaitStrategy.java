@@ -0,0 +1,12 @@
+package impl;
+
+/**
+ * 对象池已满时借用者等待对象归还的策略。
+ * SPIN和YIELD先在自适应的自旋预算内反复检查闲置队列，预算用完后再阻塞；
+ * 自旋预算根据最近观察到的归还等待时间调整，归还通常很慢时不再自旋，直接阻塞。
+ */
+public enum WaitStrategy {
+    SPIN,     //自旋，每次检查之间调用Thread.onSpinWait
+    YIELD,    //每次检查之间让出CPU
+    PARK;     //直接阻塞等待（默认）
+}
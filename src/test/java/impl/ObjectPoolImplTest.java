@@ -3,8 +3,22 @@ package impl;
 import api.ObjectFactory;
 import api.ObjectPool;
 import api.PooledObject;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.*;
 
 public class ObjectPoolImplTest {
@@ -49,6 +63,392 @@ public class ObjectPoolImplTest {
         System.out.println(" ");
     }
 
+    @Test
+    public void idleTimeEviction() throws Exception{
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,0,8,1,10,-1);
+        Student s1 = pool.borrowObject();
+        Student s2 = pool.borrowObject();
+        pool.returnObject(s1);
+        Thread.sleep(10);
+        pool.returnObject(s2);
+        Thread.sleep(10);
+        pool.evict();
+        assertEquals(1, pool.getCreateCount());
+        assertSame(s2, pool.borrowObject());
+    }
 
-}
+    @Test
+    public void lfuEviction() throws Exception{
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,0,8,1,10,-1);
+        pool.setEvictionPolicy(new LfuEvictionPolicy<Student>());
+        Student s1 = pool.borrowObject();
+        pool.returnObject(s1);
+        assertSame(s1, pool.borrowObject());
+        Student s2 = pool.borrowObject();
+        pool.returnObject(s1);
+        pool.returnObject(s2);
+        Thread.sleep(10);
+        pool.evict();
+        assertEquals(1, pool.getCreateCount());
+        assertSame(s1, pool.borrowObject());
+    }
 
+    @Test
+    public void costAwareEviction() throws Exception{
+        //第一个对象创建耗时较长，之后的对象创建很快
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(){
+            private boolean first = true;
+            @Override
+            public PooledObject<Student> createObject() throws Exception {
+                if (first) {
+                    first = false;
+                    Thread.sleep(20);
+                }
+                return super.createObject();
+            }
+        },0,0,8,1,10,-1);
+        pool.setEvictionPolicy(new CostAwareEvictionPolicy<Student>());
+        Student s1 = pool.borrowObject();
+        Student s2 = pool.borrowObject();
+        pool.returnObject(s2);
+        pool.returnObject(s1);
+        Thread.sleep(10);
+        pool.evict();
+        assertEquals(1, pool.getCreateCount());
+        assertSame(s1, pool.borrowObject());
+    }
+
+    @Test
+    public void asyncPassivation() throws Exception{
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        //第一次钝化阻塞，直到测试线程放行
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(){
+            @Override
+            public void passivateObject(PooledObject<Student> p) throws Exception {
+                if (started.getCount() > 0) {
+                    started.countDown();
+                    release.await();
+                }
+            }
+        },0,-1,2,0,2,-1);
+        pool.setAsyncPassivation(true);
+        Student s1 = pool.borrowObject();
+        Student s2 = pool.borrowObject();
+        pool.returnObject(s1);
+        assertTrue(started.await(1, TimeUnit.SECONDS));   //钝化线程正在钝化s1
+        pool.returnObject(s2);
+        //对象池已满，取回还在等待钝化的s2
+        assertSame(s2, pool.borrowObject());
+        release.countDown();
+        //s1钝化完成后可以被借出
+        assertSame(s1, pool.borrowObject(1000));
+        //关闭异步钝化后钝化线程退出，归还的对象由调用者线程钝化
+        pool.setAsyncPassivation(false);
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(pool.getName() + "-passivation")) {
+                thread.join(1000);
+                assertFalse(thread.isAlive());
+            }
+        }
+        pool.returnObject(s2);
+        assertSame(s2, pool.borrowObject(0));
+    }
+
+    @Test
+    public void byteBudget() throws Exception{
+        //以学生的年龄作为对象占用的内存
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(){
+            @Override
+            public PooledObject<Student> createObject() throws Exception {
+                return new PooledObjectImpl<>(new Student(0,"ddd"));
+            }
+            @Override
+            public long estimateSize(PooledObject<Student> p) {
+                return p.getObject().getAge();
+            }
+        },0,-1,8,0,10,-1);
+        pool.setMaxIdleBytes(150);
+        Student s1 = pool.borrowObject();
+        Student s2 = pool.borrowObject();
+        Student s3 = pool.borrowObject();
+        s1.setAge(100);
+        s2.setAge(40);
+        s3.setAge(60);
+        pool.returnObject(s1);
+        pool.returnObject(s2);
+        //超过maxIdleBytes，归还时直接销毁
+        pool.returnObject(s3);
+        assertEquals(2, pool.getCreateCount());
+        assertEquals(140, pool.getIdleBytes());
+        assertEquals(140, pool.getTotalBytes());
+        //回收时先销毁最大的空闲对象
+        pool.setMaxIdleBytes(50);
+        pool.evict();
+        assertEquals(1, pool.getCreateCount());
+        assertEquals(40, pool.getIdleBytes());
+        assertSame(s2, pool.borrowObject());
+        assertEquals(0, pool.getIdleBytes());
+    }
+
+    @Test
+    public void softOverflow() throws Exception{
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,-1,1,0,10,-1);
+        pool.setSoftOverflow(true);
+        Student s1 = pool.borrowObject();
+        Student s2 = pool.borrowObject();
+        pool.returnObject(s1);
+        //闲置队列已满，s2放入软引用溢出层而不是被销毁
+        pool.returnObject(s2);
+        assertEquals(2, pool.getCreateCount());
+        assertSame(s1, pool.borrowObject());
+        assertSame(s2, pool.borrowObject());
+        assertEquals(2, pool.createdCount.get());
+        pool.returnObject(s1);
+        pool.returnObject(s2);
+        pool.clear();
+        assertEquals(0, pool.getCreateCount());
+    }
+
+    @Test
+    public void softOverflowCleared() throws Exception{
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,-1,1,0,10,-1);
+        pool.setSoftOverflow(true);
+        Student s1 = pool.borrowObject();
+        Student s2 = pool.borrowObject();
+        pool.returnObject(s1);
+        pool.returnObject(s2);
+        //模拟GC回收溢出层中的s2
+        assertTrue(pool.softObjects.peekFirst().enqueue());
+        assertEquals(2, pool.getCreateCount());
+        assertSame(s1, pool.borrowObject());
+        //闲置队列为空时先处理被回收的软引用，再创建新对象
+        Student s3 = pool.borrowObject();
+        assertNotSame(s2, s3);
+        assertEquals(2, pool.getCreateCount());
+        assertEquals(3, pool.createdCount.get());
+        assertTrue(pool.softObjects.isEmpty());
+    }
+
+    @Test(timeout = 5000)
+    public void softOverflowWaiter() throws Exception{
+        //maxFree为0时归还的对象都进入溢出层，等待中的借用者仍要能拿到
+        final ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,-1,0,0,1,-1);
+        pool.setSoftOverflow(true);
+        for (long timeWait : new long[]{500, -1}) {
+            final Student s = pool.borrowObject();
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(50);
+                        pool.returnObject(s);
+                    } catch (Exception e) {
+                        System.out.println(e.getMessage());
+                    }
+                }
+            });
+            t.start();
+            assertSame(s, pool.borrowObject(timeWait));
+            t.join();
+            pool.returnObject(s);
+        }
+        assertEquals(1, pool.createdCount.get());
+    }
+
+    @Test
+    public void softOverflowByteBudget() throws Exception{
+        //每个对象估算占用100字节
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(){
+            @Override
+            public long estimateSize(PooledObject<Student> p) {
+                return 100L;
+            }
+        },0,-1,1,0,10,-1);
+        pool.setSoftOverflow(true);
+        Student s1 = pool.borrowObject();
+        Student s2 = pool.borrowObject();
+        Student s3 = pool.borrowObject();
+        pool.returnObject(s1);
+        pool.returnObject(s2);
+        pool.returnObject(s3);
+        assertEquals(2, pool.softObjects.size());
+        //溢出层中的对象仍计入totalBytes，回收时先销毁
+        pool.setMaxTotalBytes(150);
+        pool.evict();
+        assertTrue(pool.softObjects.isEmpty());
+        assertEquals(1, pool.getCreateCount());
+        assertEquals(100, pool.getTotalBytes());
+        assertSame(s1, pool.borrowObject());
+    }
+
+    @Test
+    public void borrowSiteProfiler() throws Exception{
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,-1,8,0,10,-1);
+        BorrowSiteProfiler profiler = new BorrowSiteProfiler(1);
+        pool.setBorrowSiteProfiler(profiler);
+        for (int i = 0; i < 3; i++) {
+            pool.returnObject(pool.borrowObject());
+        }
+        Student s = pool.borrowObject();
+        List<BorrowSiteProfiler.SiteStats> top = profiler.topSites(5);
+        assertEquals(1, top.size());
+        assertEquals(3, top.get(0).getCount());
+        assertTrue(top.get(0).getSite().contains("ObjectPoolImplTest.borrowSiteProfiler"));
+        //未归还的对象也会出现在报告中
+        assertTrue(profiler.report(5).contains("未归还的对象：\n  impl.ObjectPoolImplTest.borrowSiteProfiler"));
+        pool.returnObject(s);
+        assertEquals(2, profiler.topSites(5).size());
+    }
+
+    @Test
+    public void flightRecorderEvents() throws Exception{
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,-1,8,0,10,-1);
+        pool.setName("students");
+        Recording recording = new Recording();
+        recording.enable("objectpool.Borrow").withThreshold(Duration.ZERO);
+        recording.enable("objectpool.Create").withThreshold(Duration.ZERO);
+        recording.start();
+        pool.returnObject(pool.borrowObject());
+        pool.returnObject(pool.borrowObject());
+        recording.stop();
+        Path file = Files.createTempFile("objectpool", ".jfr");
+        recording.dump(file);
+        recording.close();
+        List<String> borrows = new ArrayList<>();
+        int creates = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals("objectpool.Borrow")) {
+                assertEquals("students", event.getString("poolName"));
+                borrows.add(event.getString("outcome"));
+            } else if (event.getEventType().getName().equals("objectpool.Create")) {
+                creates++;
+            }
+        }
+        Files.delete(file);
+        assertEquals(Arrays.asList("created", "free"), borrows);
+        assertEquals(1, creates);
+    }
+
+    @Test
+    public void scopedBorrow() throws Exception{
+        final AtomicInteger activations = new AtomicInteger();
+        final AtomicInteger passivations = new AtomicInteger();
+        ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(){
+            @Override
+            public void activateObject(PooledObject<Student> p) throws Exception {
+                activations.incrementAndGet();
+            }
+            @Override
+            public void passivateObject(PooledObject<Student> p) throws Exception {
+                passivations.incrementAndGet();
+            }
+        },0,-1,8,0,10,-1);
+        Student s;
+        try (PoolScope scope = PoolScope.open()) {
+            assertSame(scope, PoolScope.current());
+            s = pool.borrowObject();
+            pool.returnObject(s);
+            for (int i = 0; i < 10; i++) {
+                assertSame(s, pool.borrowObject());
+                pool.returnObject(s);
+            }
+            assertEquals(1, activations.get());
+            assertEquals(0, passivations.get());
+        }
+        assertNull(PoolScope.current());
+        assertEquals(1, passivations.get());
+        assertSame(s, pool.borrowObject());
+        assertEquals(2, activations.get());
+    }
+
+    @Test
+    public void scopedObjectDestroyed() throws Exception{
+        final ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,-1,8,0,10,-1);
+        try (PoolScope scope = PoolScope.open()) {
+            assertSame(scope, PoolScope.current());
+            final Student s = pool.borrowObject();
+            //其他线程销毁了作用域绑定的对象
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        pool.destroyObject(s);
+                    } catch (Exception e) {
+                        System.out.println(e.getMessage());
+                    }
+                }
+            });
+            t.start();
+            t.join();
+            Student s2 = pool.borrowObject();
+            assertNotSame(s, s2);
+            assertSame(s2, pool.borrowObject());
+        }
+        //关闭作用域时只归还重新借出的对象
+        assertEquals(1, pool.getCreateCount());
+        assertNotNull(pool.borrowObject(0));
+    }
+
+    @Test
+    public void spinWaitStrategy() throws Exception{
+        final ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,-1,1,0,1,-1);
+        pool.setWaitStrategy(WaitStrategy.SPIN);
+        final Student s = pool.borrowObject();
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(5);
+                    pool.returnObject(s);
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        });
+        t.start();
+        assertSame(s, pool.borrowObject(1000));
+        t.join();
+        //没有对象归还时仍按超时时间抛出异常
+        long start = System.nanoTime();
+        try {
+            pool.borrowObject(50);
+            fail();
+        } catch (NoSuchElementException e) {
+            assertTrue(System.nanoTime() - start >= 50_000_000L);
+        }
+    }
+
+    @Test
+    public void spinBudgetAdapts() throws Exception{
+        final ObjectPoolImpl<Student> pool = new ObjectPoolImpl<>(new StudentFactory(),0,-1,1,0,1,-1);
+        pool.setWaitStrategy(WaitStrategy.SPIN);
+        pool.setMaxSpinNanos(1_000_000L);
+        assertTrue(pool.getSpinBudgetNanos() > 0);
+        //归还耗时远超自旋预算上限时不再自旋
+        for (int i = 0; i < 3; i++) {
+            final Student s = pool.borrowObject();
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(20);
+                        pool.returnObject(s);
+                    } catch (Exception e) {
+                        System.out.println(e.getMessage());
+                    }
+                }
+            });
+            t.start();
+            assertSame(s, pool.borrowObject(1000));
+            pool.returnObject(s);
+            t.join();
+        }
+        assertEquals(0, pool.getSpinBudgetNanos());
+        //归还重新变快后恢复自旋
+        for (int i = 0; i < 64; i++)
+            pool.recordHandBack(10_000L);
+        assertTrue(pool.getSpinBudgetNanos() > 0);
+    }
+
+}
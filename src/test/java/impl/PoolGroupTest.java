@@ -0,0 +1,209 @@
+package impl;
+
+import api.PooledObject;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PoolGroupTest {
+
+    @Test
+    public void sharedBudget() throws Exception {
+        PoolGroup group = new PoolGroup(3);
+        ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory());
+        ObjectPoolImpl<Student> b = new ObjectPoolImpl<>(new StudentFactory());
+        group.register(a);
+        group.register(b);
+        a.borrowObject(0);
+        a.borrowObject(0);
+        b.borrowObject(0);
+        assertEquals(3, group.getUsed());
+        try {
+            b.borrowObject(0);
+            fail();
+        } catch (NoSuchElementException e) {
+            assertEquals(3, group.getUsed());
+        }
+    }
+
+    @Test
+    public void reclaimFromColdestPool() throws Exception {
+        PoolGroup group = new PoolGroup(2);
+        ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory());
+        ObjectPoolImpl<Student> b = new ObjectPoolImpl<>(new StudentFactory());
+        group.register(a);
+        group.register(b);
+        Student s1 = a.borrowObject(0);
+        Student s2 = a.borrowObject(0);
+        a.returnObject(s1);
+        a.returnObject(s2);
+        assertNotNull(b.borrowObject(0));
+        assertEquals(1, a.getCreateCount());
+        assertEquals(1, b.getCreateCount());
+        assertEquals(2, group.getUsed());
+    }
+
+    @Test
+    public void reclaimFromSoftOverflow() throws Exception {
+        PoolGroup group = new PoolGroup(2);
+        ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory(), 0, -1, 0, 0, 10, -1);
+        ObjectPoolImpl<Student> b = new ObjectPoolImpl<>(new StudentFactory());
+        a.setSoftOverflow(true);
+        group.register(a);
+        group.register(b);
+        Student s1 = a.borrowObject(0);
+        Student s2 = a.borrowObject(0);
+        a.returnObject(s1);
+        a.returnObject(s2);
+        //a的对象都在软引用溢出层中，仍可以被回收
+        assertNotNull(b.borrowObject(0));
+        assertEquals(1, a.getCreateCount());
+        assertEquals(1, a.softObjects.size());
+        assertEquals(2, group.getUsed());
+    }
+
+    @Test
+    public void waitForSoftOverflow() throws Exception {
+        PoolGroup group = new PoolGroup(1);
+        final ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory(), 0, -1, 0, 0, 1, -1);
+        a.setSoftOverflow(true);
+        group.register(a);
+        Student s = a.borrowObject(0);
+        returnLater(a, s, 50);
+        //归还的对象进入溢出层，等待中的借用者被唤醒后从溢出层获取
+        assertSame(s, a.borrowObject(500));
+    }
+
+    @Test
+    public void waitWithSpinStrategy() throws Exception {
+        PoolGroup group = new PoolGroup(1);
+        final ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory());
+        a.setWaitStrategy(WaitStrategy.SPIN);
+        a.setMaxSpinNanos(1_000_000L);
+        group.register(a);
+        //对象池组中的等待同样按归还等待时间调整自旋预算
+        for (int i = 0; i < 3; i++) {
+            Student s = a.borrowObject(0);
+            returnLater(a, s, 20);
+            assertSame(s, a.borrowObject(1000));
+            a.returnObject(s);
+        }
+        assertEquals(0, a.getSpinBudgetNanos());
+    }
+
+    @Test
+    public void waitReclaimsReturning() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        PoolGroup group = new PoolGroup(2);
+        //第一次钝化阻塞，钝化线程无法处理之后归还的对象
+        final ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory() {
+            @Override
+            public void passivateObject(PooledObject<Student> p) throws Exception {
+                if (started.getCount() > 0) {
+                    started.countDown();
+                    release.await();
+                }
+            }
+        });
+        a.setAsyncPassivation(true);
+        group.register(a);
+        Student s1 = a.borrowObject(0);
+        Student s2 = a.borrowObject(0);
+        a.returnObject(s1);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        returnLater(a, s2, 50);
+        //等待中的借用者取回还在等待钝化的s2
+        assertSame(s2, a.borrowObject(1000));
+        release.countDown();
+        a.close();
+    }
+
+    @Test
+    public void waitForCapacityFromOtherPool() throws Exception {
+        PoolGroup group = new PoolGroup(1);
+        final ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory());
+        ObjectPoolImpl<Student> b = new ObjectPoolImpl<>(new StudentFactory());
+        group.register(a);
+        group.register(b);
+        returnLater(a, a.borrowObject(0), 50);
+        //a归还后其空闲对象可以被回收，b在等待中获取到容量
+        assertNotNull(b.borrowObject(2000));
+        assertEquals(0, a.getCreateCount());
+    }
+
+    @Test(timeout = 5000)
+    public void waitForCapacityWithoutTimeout() throws Exception {
+        PoolGroup group = new PoolGroup(1);
+        final ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory());
+        ObjectPoolImpl<Student> b = new ObjectPoolImpl<>(new StudentFactory());
+        group.register(a);
+        group.register(b);
+        returnLater(a, a.borrowObject(0), 50);
+        //默认maxWaitTime为-1，一直等待
+        assertNotNull(b.borrowObject());
+    }
+
+    private static void returnLater(final ObjectPoolImpl<Student> pool, final Student s, final long millis) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(millis);
+                    pool.returnObject(s);
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        }).start();
+    }
+
+    @Test
+    public void byteBudget() throws Exception {
+        PoolGroup group = new PoolGroup(10);
+        group.setMaxTotalBytes(20);
+        //每个对象估算占用10字节
+        StudentFactory factory = new StudentFactory() {
+            @Override
+            public long estimateSize(PooledObject<Student> p) {
+                return 10L;
+            }
+        };
+        ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(factory);
+        ObjectPoolImpl<Student> b = new ObjectPoolImpl<>(factory);
+        group.register(a);
+        group.register(b, 1);
+        a.borrowObject(0);
+        a.borrowObject(0);
+        //恰好等于上限时仍可以创建
+        a.borrowObject(0);
+        try {
+            a.borrowObject(0);
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+        //预留容量不受内存上限限制
+        assertNotNull(b.borrowObject(0));
+    }
+
+    @Test
+    public void reservation() throws Exception {
+        PoolGroup group = new PoolGroup(3);
+        ObjectPoolImpl<Student> a = new ObjectPoolImpl<>(new StudentFactory());
+        ObjectPoolImpl<Student> b = new ObjectPoolImpl<>(new StudentFactory());
+        group.register(a);
+        group.register(b, 1);
+        a.borrowObject(0);
+        a.borrowObject(0);
+        try {
+            a.borrowObject(0);
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+        assertNotNull(b.borrowObject(0));
+    }
+}